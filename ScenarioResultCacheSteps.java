@@ -0,0 +1,427 @@
+package io.gentrack.steps;
+
+import io.cucumber.java8.En;
+import io.cucumber.java8.Scenario;
+import io.cucumber.java8.Status;
+import org.junit.AssumptionViolatedException;
+import utilities.log.CustomLoggerFactory;
+import utilities.log.ILogger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.JarURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Incremental re-run support. When enabled, a scenario that previously passed is not re-executed
+ * if its feature file, the test classpath, the target environment and the deployed stack version are unchanged.
+ * <p>Enable with {@code -DscenarioCache=<file>}, and identify the deployment with
+ * {@code -DstackVersion=<version>} and {@code -DtargetEnvironment=<name>} (or the {@code STACK_VERSION}
+ * and {@code TARGET_ENVIRONMENT} environment variables). Without both the cache is bypassed,
+ * as a redeployed stack or a different environment could not be detected.
+ * Delete the cache file to force a full run.</p>
+ * <p>Cucumber can't report a pass for a scenario that didn't run, so a cached pass is reported as
+ * SKIPPED. Tell it apart from a real skip by the {@value #CACHED_PASS} log {@code Status} and the
+ * skip reason, which always starts with {@value #CACHED_PASS_REASON}.</p>
+ * <p>The cache file is read once per JVM and this JVM's results are merged back into it on exit,
+ * under a file lock so parallel forks sharing the file don't drop each other's entries.
+ * Any error reading or writing the cache is logged and the scenario runs uncached.</p>
+ */
+public class ScenarioResultCacheSteps implements En {
+    private static final ILogger log = CustomLoggerFactory.getLogger(ScenarioResultCacheSteps.class);
+    private static final String CACHED_PASS = "Cached Pass";
+    private static final String CACHED_PASS_REASON = "[Scenario Cache][Cached Pass]";
+    private static final Object CACHE_LOCK = new Object();
+
+    /**
+     * Root packages of the glue and the helpers it calls. Every classpath location holding one of these
+     * is hashed in full, classes and resources alike, so config and payload changes also miss the cache.
+     */
+    private static final List<String> HASHED_PACKAGES = Arrays.asList(
+            "io/gentrack/",
+            "platform/",
+            "variables/",
+            "web/",
+            "utilities/");
+
+    private static final Path CACHE_FILE = Objects.isNull(System.getProperty("scenarioCache"))
+            ? null : Paths.get(System.getProperty("scenarioCache")).toAbsolutePath();
+    private static final String STACK_VERSION = System.getProperty("stackVersion", System.getenv("STACK_VERSION"));
+    private static final String TARGET_ENVIRONMENT = System.getProperty("targetEnvironment", System.getenv("TARGET_ENVIRONMENT"));
+
+    private static Properties cache;
+    private static final Map<String, String> pendingUpdates = new HashMap<>();
+    private static String classpathHash;
+    private static boolean classpathHashed;
+
+    private String scenarioKey;
+    private String scenarioHash;
+
+    public ScenarioResultCacheSteps() {
+
+        // Order 0 so a cached scenario is skipped before any other hook does setup work
+        Before(0, (Scenario scenario) -> {
+            if (Objects.isNull(CACHE_FILE) || Objects.isNull(STACK_VERSION) || Objects.isNull(TARGET_ENVIRONMENT)) {
+                return;
+            }
+
+            boolean cachedPass;
+            try {
+                scenarioKey = scenario.getUri() + ":" + scenario.getLine();
+                scenarioHash = hashScenarioInputs(scenario);
+                cachedPass = Objects.nonNull(scenarioHash) && scenarioHash.equals(loadCache().getProperty(scenarioKey));
+            } catch (IOException | NoSuchAlgorithmException | URISyntaxException | RuntimeException e) {
+                log.info("Scenario Result Cache",
+                        "Status", "Cache Error",
+                        "Key", scenarioKey,
+                        "Error", e.toString());
+                scenarioHash = null;
+                return;
+            }
+
+            if (cachedPass) {
+                log.info("Scenario Result Cache",
+                        "Status", CACHED_PASS,
+                        "Scenario", scenario.getName(),
+                        "Key", scenarioKey,
+                        "StackVersion", STACK_VERSION,
+                        "TargetEnvironment", TARGET_ENVIRONMENT);
+                throw new AssumptionViolatedException(CACHED_PASS_REASON + " Passed previously with unchanged inputs: " + scenarioKey);
+            }
+        });
+
+        // Order 0 so the result is recorded after every other After hook, including teardown, has run
+        After(0, (Scenario scenario) -> {
+            if (Objects.isNull(scenarioKey) || Objects.isNull(scenarioHash)) {
+                return;
+            }
+
+            if (scenario.getStatus() == Status.PASSED) {
+                recordResult(scenarioKey, scenarioHash);
+            } else if (scenario.isFailed()) {
+                recordResult(scenarioKey, null);
+            }
+        });
+    }
+
+    /**
+     * Hash the inputs of a scenario: the whole feature file (so Background changes are included),
+     * the classpath locations of {@link #HASHED_PACKAGES}, the target environment and the stack version.
+     * Third party libraries are not tracked.
+     *
+     * @param scenario the Cucumber Scenario
+     * @return hex encoded SHA-256, or {@code null} if the feature file or classpath couldn't be read
+     */
+    @SuppressWarnings("PMD.OnlyOneReturn") //Readable return pattern
+    private String hashScenarioInputs(Scenario scenario) throws NoSuchAlgorithmException, IOException, URISyntaxException {
+        byte[] feature = readFeature(URI.create(String.valueOf(scenario.getUri())));
+        if (Objects.isNull(feature)) {
+            log.info("Scenario Result Cache",
+                    "Status", "Unreadable Feature",
+                    "Uri", scenario.getUri());
+            return null;
+        }
+
+        String classpath = hashClasspath(getClass().getClassLoader());
+        if (Objects.isNull(classpath)) {
+            return null;
+        }
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(feature);
+        digest.update(classpath.getBytes(StandardCharsets.UTF_8));
+        digest.update(("\n" + STACK_VERSION + "\n" + TARGET_ENVIRONMENT).getBytes(StandardCharsets.UTF_8));
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Hash every directory or jar on the classpath that holds one of {@link #HASHED_PACKAGES}.
+     * Packages split across several locations are found through {@link ClassLoader#getResources(String)}.
+     * Only computed once per JVM.
+     *
+     * @param loader the class loader the glue was loaded by
+     * @return hex encoded SHA-256, or {@code null} if a package couldn't be found or read
+     */
+    @SuppressWarnings("PMD.OnlyOneReturn") //Readable return pattern
+    private static String hashClasspath(ClassLoader loader) throws NoSuchAlgorithmException, IOException, URISyntaxException {
+        synchronized (CACHE_LOCK) {
+            if (classpathHashed) {
+                return classpathHash;
+            }
+            classpathHashed = true;
+
+            Set<Path> directories = new TreeSet<>();
+            Set<Path> jars = new TreeSet<>();
+            for (String packagePath : HASHED_PACKAGES) {
+                Enumeration<URL> locations = loader.getResources(packagePath);
+                if (!locations.hasMoreElements()) {
+                    log.info("Scenario Result Cache",
+                            "Status", "Unreadable Classpath",
+                            "Package", packagePath);
+                    return null;
+                }
+
+                for (URL location : Collections.list(locations)) {
+                    if ("file".equals(location.getProtocol())) {
+                        Path root = Paths.get(location.toURI());
+                        for (int depth = packagePath.split("/").length; depth > 0; depth--) {
+                            root = root.getParent();
+                        }
+                        directories.add(root);
+                    } else if ("jar".equals(location.getProtocol())) {
+                        JarURLConnection connection = (JarURLConnection) location.openConnection();
+                        jars.add(Paths.get(connection.getJarFileURL().toURI()));
+                    } else {
+                        log.info("Scenario Result Cache",
+                                "Status", "Unreadable Classpath",
+                                "Package", packagePath,
+                                "Location", location);
+                        return null;
+                    }
+                }
+            }
+
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Path directory : directories) {
+                hashDirectory(directory, digest);
+            }
+            for (Path jar : jars) {
+                hashJar(jar, digest);
+            }
+            classpathHash = toHex(digest.digest());
+            return classpathHash;
+        }
+    }
+
+    /**
+     * Add the relative path and contents of each file under a classpath directory to the digest.
+     * Feature files are hashed per scenario instead, and the cache's own files are left out.
+     *
+     * @param root   the classpath directory
+     * @param digest the digest to update
+     */
+    private static void hashDirectory(Path root, MessageDigest digest) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile)
+                    .filter(file -> isHashedInput(file.getFileName().toString()))
+                    .filter(file -> !isCacheFile(file))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            digest.update(root.relativize(file).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+            digest.update(Files.readAllBytes(file));
+        }
+    }
+
+    /**
+     * Add the name and contents of each entry in a classpath jar to the digest.
+     *
+     * @param path   the jar file
+     * @param digest the digest to update
+     */
+    private static void hashJar(Path path, MessageDigest digest) throws IOException {
+        try (JarFile jar = new JarFile(path.toFile())) {
+            List<JarEntry> entries = Collections.list(jar.entries()).stream()
+                    .filter(entry -> !entry.isDirectory() && isHashedInput(entry.getName()))
+                    .sorted(Comparator.comparing(JarEntry::getName))
+                    .collect(Collectors.toList());
+            for (JarEntry entry : entries) {
+                digest.update(entry.getName().getBytes(StandardCharsets.UTF_8));
+                try (InputStream input = jar.getInputStream(entry)) {
+                    digest.update(readAll(input));
+                }
+            }
+        }
+    }
+
+    private static boolean isHashedInput(String name) {
+        return !name.endsWith(".feature");
+    }
+
+    private static boolean isCacheFile(Path file) {
+        return CACHE_FILE.getParent().equals(file.toAbsolutePath().getParent())
+                && file.getFileName().toString().startsWith(CACHE_FILE.getFileName().toString());
+    }
+
+
+    /**
+     * Read a feature file from either a {@code classpath:} or {@code file:} URI.
+     *
+     * @param uri the feature URI reported by Cucumber
+     * @return the feature file contents, or {@code null} if not found
+     */
+    @SuppressWarnings("PMD.OnlyOneReturn") //Readable return pattern
+    private byte[] readFeature(URI uri) throws IOException {
+        if ("classpath".equals(uri.getScheme())) {
+            String resource = uri.getSchemeSpecificPart().replaceFirst("^/", "");
+            try (InputStream feature = getClass().getClassLoader().getResourceAsStream(resource)) {
+                return Objects.isNull(feature) ? null : readAll(feature);
+            }
+        }
+
+        if (!"file".equals(uri.getScheme())) {
+            return null;
+        }
+
+        // Relative file URIs (file:src/test/...) are opaque and can't be passed to Paths.get(URI)
+        Path feature = uri.isOpaque() ? Paths.get(uri.getSchemeSpecificPart()) : Paths.get(uri);
+        return Files.exists(feature) ? Files.readAllBytes(feature) : null;
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Load the cache file once per JVM and register a shutdown hook to merge this JVM's results back.
+     *
+     * @return the cached scenario hashes
+     */
+    private static Properties loadCache() throws IOException {
+        synchronized (CACHE_LOCK) {
+            if (Objects.isNull(cache)) {
+                cache = withFileLock(ScenarioResultCacheSteps::readCacheFile);
+                Runtime.getRuntime().addShutdownHook(new Thread(ScenarioResultCacheSteps::flushCache));
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * Record a passed scenario, or remove it so it is re-run next time. Written to disk on exit.
+     *
+     * @param key  the scenario's feature URI and line
+     * @param hash the scenario's input hash, {@code null} to remove the entry
+     */
+    private static void recordResult(String key, String hash) {
+        synchronized (CACHE_LOCK) {
+            pendingUpdates.put(key, hash);
+        }
+    }
+
+    /**
+     * Merge this JVM's results into the latest cache file. Re-reads the file under the lock so entries
+     * written by other forks are kept, then replaces it atomically so readers never see a partial file.
+     */
+    private static void flushCache() {
+        synchronized (CACHE_LOCK) {
+            if (pendingUpdates.isEmpty()) {
+                return;
+            }
+
+            try {
+                withFileLock(() -> {
+                    Properties latest = readCacheFile();
+                    pendingUpdates.forEach((key, hash) -> {
+                        if (Objects.isNull(hash)) {
+                            latest.remove(key);
+                        } else {
+                            latest.setProperty(key, hash);
+                        }
+                    });
+
+                    Path temp = Files.createTempFile(CACHE_FILE.getParent(), CACHE_FILE.getFileName().toString(), ".tmp");
+                    try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                        latest.store(writer, "Scenario Result Cache");
+                    }
+                    try {
+                        Files.move(temp, CACHE_FILE, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    } catch (AtomicMoveNotSupportedException e) {
+                        Files.move(temp, CACHE_FILE, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    return latest;
+                });
+
+                log.info("Scenario Result Cache",
+                        "Status", "Stored",
+                        "Updates", pendingUpdates.size(),
+                        "File", CACHE_FILE);
+            } catch (IOException | RuntimeException e) {
+                log.info("Scenario Result Cache",
+                        "Status", "Cache Error",
+                        "File", CACHE_FILE,
+                        "Error", e.toString());
+            }
+        }
+    }
+
+    private static Properties readCacheFile() throws IOException {
+        Properties properties = new Properties();
+        if (Files.exists(CACHE_FILE)) {
+            try (Reader reader = Files.newBufferedReader(CACHE_FILE, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Run an action while holding an exclusive lock on {@code <cache file>.lock}, shared by every process
+     * using the same cache file.
+     *
+     * @param action the read or read-modify-write to run
+     * @return the cache contents returned by the action
+     */
+    private static Properties withFileLock(CacheAction action) throws IOException {
+        Path parent = CACHE_FILE.getParent();
+        Files.createDirectories(parent);
+        Path lockFile = parent.resolve(CACHE_FILE.getFileName() + ".lock");
+
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = channel.lock()) {
+            return action.run();
+        }
+    }
+
+    @FunctionalInterface
+    private interface CacheAction {
+        Properties run() throws IOException;
+    }
+}